@@ -0,0 +1,31 @@
+package tech.artcoded.triplestore.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Optional.ofNullable;
+
+public interface RoleUtil {
+  Logger LOGGER = LoggerFactory.getLogger(RoleUtil.class);
+
+  static boolean hasAnyRole(Set<String> allowedRoles) {
+    List<String> roles = ofNullable(allowedRoles).orElseGet(Set::of)
+                                                 .stream()
+                                                 .map("ROLE_"::concat)
+                                                 .peek(LOGGER::debug)
+                                                 .toList();
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    return ofNullable(authentication)
+            .stream()
+            .map(Authentication::getAuthorities)
+            .flatMap(a -> a.stream().map(GrantedAuthority::getAuthority))
+            .peek(LOGGER::debug)
+            .anyMatch(roles::contains);
+  }
+}
@@ -0,0 +1,87 @@
+package tech.artcoded.triplestore.snapshot;
+
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.FileNotFoundException;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Optional.ofNullable;
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static tech.artcoded.triplestore.security.RoleUtil.hasAnyRole;
+
+@RestController
+@RequestMapping("/snapshot")
+@ConfigurationProperties("application.security.snapshot")
+@Slf4j
+public class SnapshotEndpoint {
+  private final SnapshotService snapshotService;
+
+  @Value("${application.security.enabled}")
+  private boolean securityEnabled;
+
+  @Setter
+  private Set<String> allowedRoles;
+
+  public SnapshotEndpoint(SnapshotService snapshotService) {
+    this.snapshotService = snapshotService;
+  }
+
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> download(@RequestParam(value = "format",
+                                                                      defaultValue = "NQUADS") SnapshotFormat format) {
+    if (!canSnapshot()) {
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+    return ResponseEntity.status(200)
+                         .header(CONTENT_TYPE, "application/gzip")
+                         .header(CONTENT_DISPOSITION, "attachment; filename=\"snapshot.%s\"".formatted(format.getExtension()))
+                         .body(out -> snapshotService.export(out, format));
+  }
+
+  @PostMapping("/export")
+  public ResponseEntity<?> export(@RequestParam(value = "format",
+                                                defaultValue = "NQUADS") SnapshotFormat format) {
+    if (!canSnapshot()) {
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+    return ResponseEntity.ok(snapshotService.exportToFile(format));
+  }
+
+  @PostMapping("/restore")
+  public ResponseEntity<?> restore(@RequestParam("file") String file) {
+    if (!canSnapshot()) {
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+    try {
+      return ResponseEntity.ok(snapshotService.restore(file));
+    }
+    catch (FileNotFoundException exc) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", errorMessage(exc)));
+    }
+    catch (Exception exc) {
+      log.error("restore failed", exc);
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", errorMessage(exc)));
+    }
+  }
+
+  String errorMessage(Exception exc) {
+    return ofNullable(exc.getMessage()).orElse(exc.getClass().getSimpleName());
+  }
+
+  boolean canSnapshot() {
+    return !securityEnabled || hasAnyRole(allowedRoles);
+  }
+}
@@ -0,0 +1,24 @@
+package tech.artcoded.triplestore.snapshot;
+
+import org.apache.jena.riot.RDFFormat;
+
+public enum SnapshotFormat {
+  NQUADS(RDFFormat.NQUADS, "nq.gz"),
+  THRIFT(RDFFormat.RDF_THRIFT, "trdf.gz");
+
+  private final RDFFormat rdfFormat;
+  private final String extension;
+
+  SnapshotFormat(RDFFormat rdfFormat, String extension) {
+    this.rdfFormat = rdfFormat;
+    this.extension = extension;
+  }
+
+  public RDFFormat getRdfFormat() {
+    return rdfFormat;
+  }
+
+  public String getExtension() {
+    return extension;
+  }
+}
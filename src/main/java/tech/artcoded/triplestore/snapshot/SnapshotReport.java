@@ -0,0 +1,9 @@
+package tech.artcoded.triplestore.snapshot;
+
+public record SnapshotReport(String file, long quads, long elapsedMillis, double quadsPerSecond) {
+
+  public static SnapshotReport of(String file, long quads, long elapsedMillis) {
+    double quadsPerSecond = elapsedMillis == 0 ? quads : quads * 1000d / elapsedMillis;
+    return new SnapshotReport(file, quads, elapsedMillis, quadsPerSecond);
+  }
+}
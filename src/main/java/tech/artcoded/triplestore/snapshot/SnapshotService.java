@@ -0,0 +1,182 @@
+package tech.artcoded.triplestore.snapshot;
+
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.loader.DataLoader;
+import org.apache.jena.tdb2.loader.LoaderFactory;
+import org.apache.jena.tdb2.loader.base.LoaderOps;
+import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.sys.StoreConnection;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.time.LocalDateTime.now;
+import static java.time.format.DateTimeFormatter.ofPattern;
+
+@Service
+@Slf4j
+public class SnapshotService {
+  private static final Pattern DATA_DIR_PATTERN = Pattern.compile("Data-(\\d{4})");
+
+  private final Dataset ds;
+
+  @Value("${triplestore.snapshot.dir}")
+  private String snapshotDir;
+
+  public SnapshotService(Dataset ds) {
+    this.ds = ds;
+  }
+
+  /**
+   * Streams every quad of the dataset within a single read transaction.
+   * TDB2 readers see a consistent view and never block writers.
+   */
+  @SneakyThrows
+  public SnapshotReport export(OutputStream out, SnapshotFormat format) {
+    long start = System.currentTimeMillis();
+    AtomicLong count = new AtomicLong();
+    try (var gzip = new GZIPOutputStream(out, 64 * 1024)) {
+      Txn.executeRead(ds, () -> {
+        StreamRDF stream = StreamRDFWriter.getWriterStream(gzip, format.getRdfFormat());
+        stream.start();
+        Iterator<Quad> quads = ds.asDatasetGraph().find();
+        while (quads.hasNext()) {
+          stream.quad(quads.next());
+          count.incrementAndGet();
+        }
+        stream.finish();
+      });
+    }
+    var report = SnapshotReport.of(null, count.get(), System.currentTimeMillis() - start);
+    log.info("snapshot exported: {} quads in {} ms ({} quads/s)", report.quads(), report.elapsedMillis(),
+             (long) report.quadsPerSecond());
+    return report;
+  }
+
+  @SneakyThrows
+  public SnapshotReport exportToFile(SnapshotFormat format) {
+    File dir = new File(snapshotDir);
+    if (!dir.exists()) {
+      log.info("creating directory {}: {}", snapshotDir, dir.mkdirs());
+    }
+    String fileName = "snapshot-%s.%s".formatted(now().format(ofPattern("yyyyMMddHHmmss")), format.getExtension());
+    try (var out = new FileOutputStream(new File(dir, fileName))) {
+      var report = export(out, format);
+      return SnapshotReport.of(fileName, report.quads(), report.elapsedMillis());
+    }
+  }
+
+  /**
+   * Bulk loads a snapshot into a scratch directory, renames it to a new TDB2 generation (Data-NNNN)
+   * next to the current one, then swaps it in while the transaction coordinator is in exclusive mode.
+   * On restart, TDB2 opens the latest generation, so the restore survives.
+   */
+  public synchronized SnapshotReport restore(String fileName) throws IOException {
+    File snapshot = new File(snapshotDir, FilenameUtils.getName(fileName));
+    if (!snapshot.isFile()) {
+      throw new FileNotFoundException("snapshot %s not found".formatted(snapshot.getName()));
+    }
+    if (!(ds.asDatasetGraph() instanceof DatasetGraphSwitchable container)) {
+      throw new UnsupportedOperationException("restore is only supported on a TDB2 database");
+    }
+
+    long start = System.currentTimeMillis();
+    DatasetGraphTDB current = TDBInternal.getDatasetGraphTDB(container);
+    Path containerPath = container.getContainerPath();
+    Path scratch = Files.createDirectories(containerPath.resolve("restore-%d".formatted(start)));
+    Location scratchLocation = Location.create(scratch.toString());
+    log.info("restoring snapshot {} into {}", snapshot.getName(), scratch);
+
+    long quads;
+    try {
+      quads = bulkLoad(scratchLocation, snapshot);
+    }
+    catch (RuntimeException exc) {
+      StoreConnection.release(scratchLocation);
+      FileUtils.deleteQuietly(scratch.toFile());
+      throw exc;
+    }
+    StoreConnection.release(scratchLocation);
+
+    // only a complete load gets a Data-NNNN name, as TDB2 opens the highest one on startup
+    Path nextPath = nextGeneration(containerPath);
+    Files.move(scratch, nextPath, StandardCopyOption.ATOMIC_MOVE);
+    Location next = Location.create(nextPath.toString());
+    try {
+      DatasetGraphTDB restored = StoreConnection.connectCreate(next).getDatasetGraphTDB();
+      TransactionCoordinator coordinator = current.getTxnSystem().getTxnMgr();
+      coordinator.startExclusiveMode();
+      try {
+        if (!container.change(current, restored)) {
+          throw new IllegalStateException("database changed while restoring, swap aborted");
+        }
+      }
+      finally {
+        coordinator.finishExclusiveMode();
+      }
+    }
+    catch (RuntimeException exc) {
+      StoreConnection.release(next);
+      FileUtils.deleteQuietly(nextPath.toFile());
+      throw exc;
+    }
+    StoreConnection.release(current.getLocation());
+
+    var report = SnapshotReport.of(snapshot.getName(), quads, System.currentTimeMillis() - start);
+    log.info("snapshot restored: {} quads in {} ms ({} quads/s), previous generation kept in {}", report.quads(),
+             report.elapsedMillis(), (long) report.quadsPerSecond(), current.getLocation().getDirectoryPath());
+    return report;
+  }
+
+  private long bulkLoad(Location location, File snapshot) {
+    DatasetGraphTDB dsg = StoreConnection.connectCreate(location).getDatasetGraphTDB();
+    DataLoader loader = LoaderFactory.parallelLoader(dsg, LoaderOps.outputToLog());
+    loader.startBulk();
+    try {
+      loader.load(snapshot.getAbsolutePath());
+      loader.finishBulk();
+    }
+    catch (RuntimeException exc) {
+      loader.finishException(exc);
+      throw exc;
+    }
+    return loader.countTriples() + loader.countQuads();
+  }
+
+  private Path nextGeneration(Path containerPath) throws IOException {
+    try (Stream<Path> paths = Files.list(containerPath)) {
+      int max = paths.map(p -> DATA_DIR_PATTERN.matcher(p.getFileName().toString()))
+                     .filter(Matcher::matches)
+                     .mapToInt(m -> Integer.parseInt(m.group(1)))
+                     .max()
+                     .orElse(0);
+      return containerPath.resolve("Data-%04d".formatted(max + 1));
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package tech.artcoded.triplestore.sparql;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.camel.ExchangePattern;
@@ -12,18 +14,17 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import tech.artcoded.triplestore.tdb.TDBService;
+import tech.artcoded.triplestore.tdb.explain.QueryProfiler;
+import tech.artcoded.triplestore.workload.WorkloadEvent;
+import tech.artcoded.triplestore.workload.WorkloadRecorder;
 
 import javax.servlet.http.HttpServletRequest;
-import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
@@ -34,6 +35,8 @@ import static java.util.Optional.ofNullable;
 import static java.util.concurrent.CompletableFuture.runAsync;
 import static org.springframework.http.HttpHeaders.ACCEPT;
 import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static tech.artcoded.triplestore.security.RoleUtil.hasAnyRole;
 import static tech.artcoded.triplestore.sparql.QueryParserUtil.parseOperation;
 
 
@@ -43,6 +46,9 @@ import static tech.artcoded.triplestore.sparql.QueryParserUtil.parseOperation;
 public class SparqlEndpoint {
   private final ProducerTemplate producerTemplate;
   private final TDBService tdbService;
+  private final QueryProfiler queryProfiler;
+  private final ObjectMapper objectMapper;
+  private final WorkloadRecorder workloadRecorder;
 
   @Value("${application.security.enabled}")
   private boolean securityEnabled;
@@ -50,9 +56,13 @@ public class SparqlEndpoint {
   @Setter
   private Set<String> allowedRoles;
 
-  public SparqlEndpoint(ProducerTemplate producerTemplate, TDBService tdbService) {
+  public SparqlEndpoint(ProducerTemplate producerTemplate, TDBService tdbService, QueryProfiler queryProfiler,
+                        ObjectMapper objectMapper, WorkloadRecorder workloadRecorder) {
     this.producerTemplate = producerTemplate;
     this.tdbService = tdbService;
+    this.queryProfiler = queryProfiler;
+    this.objectMapper = objectMapper;
+    this.workloadRecorder = workloadRecorder;
   }
 
   @RequestMapping(value = "/public/sparql",
@@ -62,7 +72,7 @@ public class SparqlEndpoint {
                                                                   @RequestParam(value = "update",
                                                                                 required = false) String update,
                                                                   HttpServletRequest request) {
-    return execute(query, update, request, true);
+    return execute(query, update, request, true, ExecutionMode.PUBLIC_EXECUTE);
   }
 
   @RequestMapping(value = "/sparql",
@@ -71,25 +81,37 @@ public class SparqlEndpoint {
                                                                           required = false) String query,
                                                             @RequestParam(value = "update",
                                                                           required = false) String update,
+                                                            @RequestParam(value = "explain",
+                                                                          defaultValue = "false") boolean explain,
+                                                            @RequestParam(value = "profile",
+                                                                          defaultValue = "false") boolean profile,
                                                             HttpServletRequest request) {
-    return execute(query, update, request, false);
+    var mode = explain ? ExecutionMode.EXPLAIN : profile ? ExecutionMode.PROFILE : ExecutionMode.EXECUTE;
+    return execute(query, update, request, mode != ExecutionMode.EXECUTE, mode);
   }
 
-  ResponseEntity<StreamingResponseBody> execute(String query, String update, HttpServletRequest request, boolean forceRead) {
+  ResponseEntity<StreamingResponseBody> execute(String query, String update, HttpServletRequest request, boolean forceRead,
+                                                ExecutionMode mode) {
     String accept = request.getHeader(ACCEPT);
 
     return ofNullable(query).filter(StringUtils::isNotEmpty)
                             .or(() -> ofNullable(update))
-                            .map(q -> tryParseExecute(q, accept, forceRead))
+                            .map(q -> tryParseExecute(q, accept, forceRead, mode))
                             .orElseGet(ResponseEntity.noContent()::build);
   }
 
 
-  ResponseEntity<StreamingResponseBody> tryParseExecute(String query, String accept, boolean forceRead) {
+  ResponseEntity<StreamingResponseBody> tryParseExecute(String query, String accept, boolean forceRead,
+                                                        ExecutionMode mode) {
     try {
       return parseOperation(query, forceRead).flatMap(operation -> switch (operation.type()) {
         case READ:
-          if (operation.query() instanceof Query q) yield of(executeRead(q, accept));
+          if (operation.query() instanceof Query q) yield of(switch (mode) {
+            case EXPLAIN -> json(queryProfiler.explain(q));
+            case PROFILE -> json(queryProfiler.profile(q));
+            case EXECUTE -> executeRead(q, accept, true);
+            case PUBLIC_EXECUTE -> executeRead(q, accept, false);
+          });
           else yield empty();
         case UPDATE:
           if (operation.query() instanceof UpdateRequest q) yield of(executeUpdate(q));
@@ -101,10 +123,22 @@ public class SparqlEndpoint {
     }
   }
 
-  ResponseEntity<StreamingResponseBody> executeRead(Query query, String accept) {
+  ResponseEntity<StreamingResponseBody> executeRead(Query query, String accept, boolean observe) {
     runAsync(() -> this.producerTemplate.sendBodyAndHeader("jms:queue:sparql-read", ExchangePattern.InOnly, query.serialize(),
                                                            "accept", accept));
-    var response = tdbService.executeQuery(query, accept);
+    long start = System.currentTimeMillis();
+    SparqlResult response;
+    try {
+      response = tdbService.executeQuery(query, accept);
+      workloadRecorder.record(WorkloadEvent.Type.READ, query.serialize(), accept, start, true);
+      if (observe) {
+        queryProfiler.observe(query, System.currentTimeMillis() - start);
+      }
+    }
+    catch (RuntimeException exc) {
+      workloadRecorder.record(WorkloadEvent.Type.READ, query.serialize(), accept, start, false);
+      throw exc;
+    }
     return ResponseEntity.status(200).header(CONTENT_TYPE, response.getContentType())
                          .body((out) -> {
                            try (var is = response.getBody()) {
@@ -113,6 +147,16 @@ public class SparqlEndpoint {
                          });
   }
 
+  ResponseEntity<StreamingResponseBody> json(Object body) {
+    try {
+      byte[] json = objectMapper.writeValueAsBytes(body);
+      return ResponseEntity.status(200).header(CONTENT_TYPE, APPLICATION_JSON_VALUE).body(out -> out.write(json));
+    }
+    catch (JsonProcessingException exc) {
+      throw new RuntimeException(exc);
+    }
+  }
+
   ResponseEntity<StreamingResponseBody> executeUpdate(UpdateRequest update) {
     if (!canUpdate()) {
       return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -123,23 +167,11 @@ public class SparqlEndpoint {
                          .body((out) -> IOUtils.write("processing update", out, UTF_8));
   }
 
-  boolean canUpdate() {
-    if (securityEnabled) {
-      List<String> roles = ofNullable(allowedRoles).orElseGet(Set::of)
-                                                   .stream()
-                                                   .map("ROLE_"::concat)
-                                                   .peek(log::debug)
-                                                   .toList();
-      Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-      return ofNullable(authentication)
-              .stream()
-              .map(Authentication::getAuthorities)
-              .flatMap(a -> a.stream().map(GrantedAuthority::getAuthority))
-              .peek(log::debug)
-              .anyMatch(roles::contains);
+  // anonymous reads are never profiled again, so they cannot make the server run heavy queries twice
+  enum ExecutionMode {EXECUTE, PUBLIC_EXECUTE, EXPLAIN, PROFILE}
 
-    }
-    return true;
+  boolean canUpdate() {
+    return !securityEnabled || hasAnyRole(allowedRoles);
   }
 
 }
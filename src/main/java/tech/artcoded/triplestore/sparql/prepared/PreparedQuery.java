@@ -0,0 +1,29 @@
+package tech.artcoded.triplestore.sparql.prepared;
+
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.Query;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.OpVars;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.util.Context;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public record PreparedQuery(String name, Query query, Op op, Set<String> parameters) {
+
+  /**
+   * Compiles, optimizes with the dataset context and converts the query to quad form once.
+   * Executions disable the engine optimizer and run this op as-is, with parameters as the input binding.
+   */
+  public static PreparedQuery prepare(String name, Query query, DatasetGraph dsg) {
+    Context context = Context.setupContextForDataset(ARQ.getContext(), dsg);
+    Op op = Algebra.toQuadForm(Algebra.optimize(Algebra.compile(query), context));
+    Set<String> parameters = OpVars.mentionedVars(op).stream()
+                                   .map(Var::getVarName)
+                                   .collect(Collectors.toUnmodifiableSet());
+    return new PreparedQuery(name, query, op, parameters);
+  }
+}
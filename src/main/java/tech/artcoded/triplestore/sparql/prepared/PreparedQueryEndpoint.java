@@ -0,0 +1,152 @@
+package tech.artcoded.triplestore.sparql.prepared;
+
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.system.PrefixMap;
+import org.apache.jena.riot.system.PrefixMapFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.util.NodeFactoryExtra;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tech.artcoded.triplestore.tdb.TDBService;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.springframework.http.HttpHeaders.ACCEPT;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static tech.artcoded.triplestore.security.RoleUtil.hasAnyRole;
+
+@RestController
+@RequestMapping("/sparql/prepared")
+@ConfigurationProperties("application.security.sparql.update")
+@Slf4j
+public class PreparedQueryEndpoint {
+  private final PreparedQueryRegistry registry;
+  private final TDBService tdbService;
+
+  @Value("${application.security.enabled}")
+  private boolean securityEnabled;
+
+  @Setter
+  private Set<String> allowedRoles;
+
+  public PreparedQueryEndpoint(PreparedQueryRegistry registry, TDBService tdbService) {
+    this.registry = registry;
+    this.tdbService = tdbService;
+  }
+
+  @GetMapping
+  public Map<String, String> list() {
+    return registry.list()
+                   .stream()
+                   .collect(Collectors.toMap(PreparedQuery::name, p -> p.query().serialize()));
+  }
+
+  @PutMapping("/{name}")
+  public ResponseEntity<StreamingResponseBody> register(@PathVariable("name") String name,
+                                                        @RequestParam("query") String query) {
+    if (!canRegister()) {
+      return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                           .body(out -> IOUtils.write("You cannot perform this action", out, UTF_8));
+    }
+    try {
+      var prepared = registry.register(name, query);
+      return ResponseEntity.status(200)
+                           .body(out -> IOUtils.write("prepared query '%s' registered, parameters: %s"
+                                                              .formatted(prepared.name(), prepared.parameters()), out, UTF_8));
+    }
+    catch (Exception exc) {
+      return ResponseEntity.status(400).body((out) -> IOUtils.write("{error: '%s'}".formatted(exc.getMessage()), out, UTF_8));
+    }
+  }
+
+  @DeleteMapping("/{name}")
+  public ResponseEntity<Void> remove(@PathVariable("name") String name) {
+    if (!canRegister()) {
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+    return registry.remove(name) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+  }
+
+  @RequestMapping(value = "/{name}",
+                  method = {RequestMethod.GET, RequestMethod.POST})
+  public ResponseEntity<StreamingResponseBody> execute(@PathVariable("name") String name,
+                                                       @RequestParam Map<String, String> params,
+                                                       HttpServletRequest request) {
+    String accept = request.getHeader(ACCEPT);
+    return registry.get(name)
+                   .map(prepared -> tryExecute(prepared, params, accept))
+                   .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
+  ResponseEntity<StreamingResponseBody> tryExecute(PreparedQuery prepared, Map<String, String> params, String accept) {
+    try {
+      var response = tdbService.executePreparedQuery(prepared, toBinding(prepared, params), accept);
+      return ResponseEntity.status(200).header(CONTENT_TYPE, response.getContentType())
+                           .body((out) -> {
+                             try (var is = response.getBody()) {
+                               IOUtils.copyLarge(is, out);
+                             }
+                           });
+    }
+    catch (Exception exc) {
+      return ResponseEntity.status(400).body((out) -> IOUtils.write("{error: '%s'}".formatted(exc.getMessage()), out, UTF_8));
+    }
+  }
+
+  /**
+   * Parameters are turned into RDF terms, never spliced into the query string.
+   * Values in SPARQL syntax (e.g. {@code <iri>}, {@code "lit"@en}, {@code 42}, {@code prefix:name}) are parsed,
+   * absolute IRIs are taken as-is and anything else becomes a plain string literal. Variables and blank nodes are rejected.
+   */
+  Binding toBinding(PreparedQuery prepared, Map<String, String> params) {
+    PrefixMap prefixes = PrefixMapFactory.create(prepared.query().getPrefixMapping());
+    BindingBuilder builder = Binding.builder();
+    params.entrySet()
+          .stream()
+          .filter(e -> prepared.parameters().contains(e.getKey()))
+          .forEach(e -> builder.add(Var.alloc(e.getKey()), toNode(e.getValue(), prefixes)));
+    return builder.build();
+  }
+
+  Node toNode(String value, PrefixMap prefixes) {
+    Node node;
+    try {
+      node = NodeFactoryExtra.parseNode(value, prefixes);
+    }
+    catch (Exception exc) {
+      if (value.contains("://") || value.startsWith("urn:")) {
+        return NodeFactory.createURI(value);
+      }
+      return NodeFactory.createLiteral(value);
+    }
+    if (node.isVariable() || node.isBlank()) {
+      throw new IllegalArgumentException("parameter value '%s' must be an IRI or a literal".formatted(value));
+    }
+    return node;
+  }
+
+  boolean canRegister() {
+    return !securityEnabled || hasAnyRole(allowedRoles);
+  }
+}
@@ -0,0 +1,90 @@
+package tech.artcoded.triplestore.sparql.prepared;
+
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.Query;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import tech.artcoded.triplestore.sparql.QueryParserUtil;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Optional.ofNullable;
+
+@Service
+@Slf4j
+public class PreparedQueryRegistry {
+  private static final String EXTENSION = "rq";
+
+  private final Map<String, PreparedQuery> preparedQueries = new ConcurrentHashMap<>();
+  private final File directory;
+  private final Dataset ds;
+
+  public PreparedQueryRegistry(Dataset ds, @Value("${triplestore.prepared.dir}") String preparedDir) {
+    this.ds = ds;
+    this.directory = new File(preparedDir);
+    if (!directory.exists()) {
+      log.info("creating directory {}: {}", preparedDir, directory.mkdirs());
+    }
+    Stream.of(ofNullable(directory.listFiles((dir, fileName) -> EXTENSION.equals(FilenameUtils.getExtension(fileName))))
+                      .orElseGet(() -> new File[0]))
+          .forEach(this::load);
+  }
+
+  public Optional<PreparedQuery> get(String name) {
+    return ofNullable(preparedQueries.get(name));
+  }
+
+  public Collection<PreparedQuery> list() {
+    return preparedQueries.values();
+  }
+
+  @SneakyThrows
+  public PreparedQuery register(String name, String query) {
+    PreparedQuery prepared = prepare(name, query);
+    FileUtils.writeStringToFile(fileOf(name), query, UTF_8);
+    preparedQueries.put(name, prepared);
+    log.info("prepared query '{}' registered with parameters {}", name, prepared.parameters());
+    return prepared;
+  }
+
+  public boolean remove(String name) {
+    FileUtils.deleteQuietly(fileOf(name));
+    return preparedQueries.remove(name) != null;
+  }
+
+  private void load(File file) {
+    String name = FilenameUtils.getBaseName(file.getName());
+    try {
+      preparedQueries.put(name, prepare(name, FileUtils.readFileToString(file, UTF_8)));
+      log.info("prepared query '{}' loaded", name);
+    }
+    catch (Exception exc) {
+      log.error("could not load prepared query {}", file.getName(), exc);
+    }
+  }
+
+  private PreparedQuery prepare(String name, String query) {
+    if (!name.matches("[\\w-]+")) {
+      throw new IllegalArgumentException("invalid prepared query name '%s'".formatted(name));
+    }
+    return QueryParserUtil.parseQuery(query, true)
+                          .map(QueryParserUtil.QueryTuple::query)
+                          .filter(Query.class::isInstance)
+                          .map(q -> PreparedQuery.prepare(name, (Query) q, ds.asDatasetGraph()))
+                          .orElseThrow(() -> new IllegalArgumentException("not a read query"));
+  }
+
+  private File fileOf(String name) {
+    return new File(directory, FilenameUtils.getName(name) + "." + EXTENSION);
+  }
+}
@@ -6,6 +6,8 @@ import org.apache.camel.LoggingLevel;
 import org.apache.camel.builder.RouteBuilder;
 import org.springframework.stereotype.Component;
 import tech.artcoded.triplestore.tdb.TDBService;
+import tech.artcoded.triplestore.workload.WorkloadEvent;
+import tech.artcoded.triplestore.workload.WorkloadRecorder;
 
 import java.util.UUID;
 
@@ -18,9 +20,11 @@ import static tech.artcoded.triplestore.sparql.route.Constants.UPDATE_QUERY_TRIP
 @Component
 public class UpdateRouteBuilder extends RouteBuilder {
   private final TDBService sparqlClient;
+  private final WorkloadRecorder workloadRecorder;
 
-  public UpdateRouteBuilder(TDBService sparqlClient) {
+  public UpdateRouteBuilder(TDBService sparqlClient, WorkloadRecorder workloadRecorder) {
     this.sparqlClient = sparqlClient;
+    this.workloadRecorder = workloadRecorder;
   }
 
   @Override
@@ -55,6 +59,14 @@ public class UpdateRouteBuilder extends RouteBuilder {
   }
 
   public void process(@Body String query) {
-    sparqlClient.executeUpdateQuery(query);
+    long start = System.currentTimeMillis();
+    try {
+      sparqlClient.executeUpdateQuery(query);
+      workloadRecorder.record(WorkloadEvent.Type.UPDATE, query, null, start, true);
+    }
+    catch (RuntimeException exc) {
+      workloadRecorder.record(WorkloadEvent.Type.UPDATE, query, null, start, false);
+      throw exc;
+    }
   }
 }
@@ -4,19 +4,34 @@ import com.google.common.collect.Lists;
 import com.google.common.io.FileBackedOutputStream;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.jena.atlas.lib.Alarm;
+import org.apache.jena.atlas.lib.AlarmClock;
 import org.apache.jena.atlas.web.ContentType;
 import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
+import org.apache.jena.query.ARQ;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryExecution;
 import org.apache.jena.query.QueryExecutionDatasetBuilder;
+import org.apache.jena.query.ResultSetFactory;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.riot.RDFFormat;
 import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.Plan;
+import org.apache.jena.sparql.engine.QueryEngineRegistry;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.modify.TemplateLib;
+import org.apache.jena.sparql.syntax.syntaxtransform.QueryTransformOps;
+import org.apache.jena.sparql.util.Context;
 import org.apache.jena.system.Txn;
 import org.apache.jena.update.UpdateExecution;
 import org.apache.jena.update.UpdateExecutionFactory;
@@ -25,10 +40,13 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import tech.artcoded.triplestore.sparql.QueryParserUtil;
 import tech.artcoded.triplestore.sparql.SparqlResult;
+import tech.artcoded.triplestore.sparql.prepared.PreparedQuery;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -89,6 +107,47 @@ public class TDBService {
     return this.executeQueryTimeout(() -> Txn.calculateRead(ds, _executeQuery));
   }
 
+  public SparqlResult executePreparedQuery(PreparedQuery prepared, Binding binding, String acceptHeader) {
+    Query q = prepared.query();
+    if (q.isDescribeType()) {
+      Map<Var, Node> substitutions = new HashMap<>();
+      binding.forEach(substitutions::put);
+      return executeQuery(QueryTransformOps.transform(q, substitutions), acceptHeader);
+    }
+    Supplier<SparqlResult> _executePreparedQuery = () -> {
+      Op op = prepared.op();
+      DatasetGraph dsg = ds.asDatasetGraph();
+      Context context = Context.setupContextForDataset(ARQ.getContext(), dsg);
+      context.set(ARQ.optimization, false); // already optimized when prepared
+      Plan plan = QueryEngineRegistry.findFactory(op, dsg, context).create(op, dsg, binding, context);
+      QueryIterator iterator = plan.iterator();
+      // same as QueryExecution.timeout: cancelling the iterator ends the execution and its read transaction
+      Alarm alarm = AlarmClock.get().add(iterator::cancel, TimeUnit.SECONDS.toMillis(timeout));
+      try {
+        return switch (q.queryType()) {
+          case ASK -> tryFormat((lang, out) -> output(out, iterator.hasNext(), lang), acceptHeader, RS_JSON);
+          case SELECT -> tryFormat((lang, out) -> output(out, ResultSetFactory.create(iterator, q.getResultVars()), lang),
+                                   acceptHeader, RS_JSON);
+          case CONSTRUCT -> {
+            Model model = ModelFactory.createDefaultModel();
+            TemplateLib.calcTriples(q.getConstructTemplate().getTriples(), iterator).forEachRemaining(model.getGraph()::add);
+            yield tryFormat((lang, out) -> write(out, model, lang), acceptHeader, TURTLE);
+          }
+          default -> throw new UnsupportedOperationException(q.queryType() + " Not supported");
+        };
+      }
+      catch (Exception exc) {
+        log.error("exception occurred", exc);
+        throw new RuntimeException(exc);
+      }
+      finally {
+        AlarmClock.get().cancel(alarm);
+        plan.close();
+      }
+    };
+    return this.executeQueryTimeout(() -> Txn.calculateRead(ds, _executePreparedQuery));
+  }
+
   private SparqlResult executeQueryTimeout(Supplier<SparqlResult> supplier) {
     CompletableFuture<SparqlResult> future = CompletableFuture.supplyAsync(supplier);
     try {
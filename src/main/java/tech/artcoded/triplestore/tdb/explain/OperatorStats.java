@@ -0,0 +1,52 @@
+package tech.artcoded.triplestore.tdb.explain;
+
+import org.apache.jena.sparql.algebra.Op;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+class OperatorStats {
+  private final String key;
+  private final Op op;
+  private final int depth;
+  private final int order;
+  private final AtomicLong invocations = new AtomicLong();
+  private final AtomicLong rows = new AtomicLong();
+  private final AtomicLong nanos = new AtomicLong();
+
+  OperatorStats(String key, Op op, int depth, int order) {
+    this.key = key;
+    this.op = op;
+    this.depth = depth;
+    this.order = order;
+  }
+
+  String getKey() {
+    return key;
+  }
+
+  int getDepth() {
+    return depth;
+  }
+
+  int getOrder() {
+    return order;
+  }
+
+  void invoked(long elapsedNanos) {
+    invocations.incrementAndGet();
+    nanos.addAndGet(elapsedNanos);
+  }
+
+  void row() {
+    rows.incrementAndGet();
+  }
+
+  void elapsed(long elapsedNanos) {
+    nanos.addAndGet(elapsedNanos);
+  }
+
+  QueryProfile.OperatorProfile toProfile() {
+    return new QueryProfile.OperatorProfile(depth, op.getName(), op.toString().replaceAll("\\s+", " ").trim(),
+                                            invocations.get(), rows.get(), nanos.get() / 1_000_000d);
+  }
+}
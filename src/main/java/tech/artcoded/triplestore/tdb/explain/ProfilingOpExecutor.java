@@ -0,0 +1,28 @@
+package tech.artcoded.triplestore.tdb.explain;
+
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.tdb2.solver.OpExecutorTDB2;
+
+/**
+ * TDB2 executor wrapping every operator iterator, so a single query execution
+ * collects per operator statistics in a {@link ProfilingSession}.
+ */
+class ProfilingOpExecutor extends OpExecutorTDB2 {
+  private final ProfilingSession session;
+
+  ProfilingOpExecutor(ExecutionContext execCxt, ProfilingSession session) {
+    super(execCxt);
+    this.session = session;
+  }
+
+  @Override
+  protected QueryIterator exec(Op op, QueryIterator input) {
+    OperatorStats stats = session.stats(op);
+    long start = System.nanoTime();
+    QueryIterator iterator = session.within(stats, true, () -> super.exec(op, input));
+    stats.invoked(System.nanoTime() - start);
+    return new ProfilingQueryIterator(iterator, stats, session);
+  }
+}
@@ -0,0 +1,44 @@
+package tech.artcoded.triplestore.tdb.explain;
+
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIteratorWrapper;
+
+/**
+ * Counts the rows produced by an operator and the time spent pulling them,
+ * children included since iterators are evaluated lazily.
+ */
+class ProfilingQueryIterator extends QueryIteratorWrapper {
+  private final OperatorStats stats;
+  private final ProfilingSession session;
+
+  ProfilingQueryIterator(QueryIterator iterator, OperatorStats stats, ProfilingSession session) {
+    super(iterator);
+    this.stats = stats;
+    this.session = session;
+  }
+
+  @Override
+  protected boolean hasNextBinding() {
+    long start = System.nanoTime();
+    try {
+      return session.within(stats, false, super::hasNextBinding);
+    }
+    finally {
+      stats.elapsed(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  protected Binding moveToNextBinding() {
+    long start = System.nanoTime();
+    try {
+      Binding binding = session.within(stats, false, super::moveToNextBinding);
+      stats.row();
+      return binding;
+    }
+    finally {
+      stats.elapsed(System.nanoTime() - start);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package tech.artcoded.triplestore.tdb.explain;
+
+import org.apache.jena.sparql.algebra.Op;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Per operator statistics of one profiled execution, keyed by position in the operator tree.
+ * Iterators such as the optional index join substitute and execute their right side again for every
+ * input row, creating new op instances in a new executor: those executions are attached to the operator
+ * currently pulling rows, so they are merged in a single entry.
+ */
+class ProfilingSession {
+  private final Map<String, OperatorStats> operators = new HashMap<>();
+  private final ThreadLocal<Deque<Frame>> frames = ThreadLocal.withInitial(ArrayDeque::new);
+
+  private record Frame(String key, OperatorStats stats, boolean building, int[] children) {
+  }
+
+  synchronized OperatorStats stats(Op op) {
+    Frame parent = frames.get().peek();
+    String key;
+    int depth;
+    if (parent == null) {
+      key = op.getName();
+      depth = 0;
+    }
+    else {
+      String position = parent.building() ? String.valueOf(parent.children()[0]++) : "apply";
+      key = "%s/%s:%s".formatted(parent.key(), position, op.getName());
+      depth = parent.stats().getDepth() + 1;
+    }
+    return operators.computeIfAbsent(key, k -> new OperatorStats(k, op, depth, operators.size()));
+  }
+
+  /**
+   * Runs the action with the operator as parent of any op executed meanwhile,
+   * while building its iterator or while pulling rows from it.
+   */
+  <T> T within(OperatorStats stats, boolean building, Supplier<T> action) {
+    Deque<Frame> stack = frames.get();
+    stack.push(new Frame(stats.getKey(), stats, building, new int[1]));
+    try {
+      return action.get();
+    }
+    finally {
+      stack.pop();
+    }
+  }
+
+  synchronized List<QueryProfile.OperatorProfile> profiles() {
+    return operators.values()
+                    .stream()
+                    .sorted(Comparator.comparingInt(OperatorStats::getOrder))
+                    .map(OperatorStats::toProfile)
+                    .toList();
+  }
+}
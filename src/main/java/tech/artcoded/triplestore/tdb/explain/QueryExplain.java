@@ -0,0 +1,12 @@
+package tech.artcoded.triplestore.tdb.explain;
+
+import java.util.List;
+
+public record QueryExplain(String query, String algebra, List<PatternBlock> patternBlocks) {
+
+  public record PatternBlock(String graph, List<PatternAccess> patterns) {
+  }
+
+  public record PatternAccess(String pattern, String index) {
+  }
+}
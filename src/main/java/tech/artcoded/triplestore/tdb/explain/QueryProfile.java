@@ -0,0 +1,16 @@
+package tech.artcoded.triplestore.tdb.explain;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @param observedMillis time of the execution that triggered the profile, equal to elapsedMillis for manual profiles
+ */
+public record QueryProfile(String query, Trigger trigger, Date executedAt, long observedMillis, long rows, long elapsedMillis,
+                           List<OperatorProfile> operators) {
+
+  public enum Trigger {MANUAL, TRAFFIC}
+
+  public record OperatorProfile(int depth, String name, String op, long invocations, long rows, double elapsedMillis) {
+  }
+}
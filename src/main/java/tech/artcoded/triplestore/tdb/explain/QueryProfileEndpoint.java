@@ -0,0 +1,28 @@
+package tech.artcoded.triplestore.tdb.explain;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@Endpoint(id = "queryprofiles")
+public class QueryProfileEndpoint {
+  private final QueryProfiler queryProfiler;
+
+  public QueryProfileEndpoint(QueryProfiler queryProfiler) {
+    this.queryProfiler = queryProfiler;
+  }
+
+  @ReadOperation
+  public List<QueryProfile> slowest() {
+    return queryProfiler.getSlowest();
+  }
+
+  @DeleteOperation
+  public void clear() {
+    queryProfiler.clear();
+  }
+}
@@ -0,0 +1,254 @@
+package tech.artcoded.triplestore.tdb.explain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionDatasetBuilder;
+import org.apache.jena.query.ResultSetFormatter;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.OpVisitorBase;
+import org.apache.jena.sparql.algebra.OpWalker;
+import org.apache.jena.sparql.algebra.op.OpBGP;
+import org.apache.jena.sparql.algebra.op.OpQuadPattern;
+import org.apache.jena.sparql.core.BasicPattern;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.engine.main.QC;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@Service
+@Slf4j
+public class QueryProfiler implements DisposableBean {
+  private final Dataset ds;
+  private final Map<String, QueryProfile> slowest = new HashMap<>();
+  private final Set<String> pending = new HashSet<>();
+  private final ExecutorService trafficProfiler = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                                                                         new ArrayBlockingQueue<>(10));
+
+  @Value("${triplestore.query.timeout}")
+  private long timeout;
+  @Value("${triplestore.profile.retain}")
+  private int retain;
+  @Value("${triplestore.profile.traffic}")
+  private boolean profileTraffic;
+  @Value("${triplestore.profile.minMillis}")
+  private long minMillis;
+
+  public QueryProfiler(Dataset ds) {
+    this.ds = ds;
+  }
+
+  /**
+   * Optimized algebra in quad form, with every basic graph pattern in the order
+   * chosen by the TDB2 reorder transformation and the index expected to serve each pattern.
+   */
+  public QueryExplain explain(Query query) {
+    DatasetGraph dsg = ds.asDatasetGraph();
+    Context context = Context.setupContextForDataset(ARQ.getContext(), dsg);
+    Op op = Algebra.toQuadForm(Algebra.optimize(Algebra.compile(query), context));
+    boolean unionDefaultGraph = context.isTrue(TDB2.symUnionDefaultGraph);
+    DatasetGraphTDB dsgTDB = TDBInternal.getDatasetGraphTDB(dsg);
+    ReorderTransformation reorder = dsgTDB.getReorderTransform();
+
+    List<QueryExplain.PatternBlock> blocks = new ArrayList<>();
+    OpWalker.walk(op, new OpVisitorBase() {
+      @Override
+      public void visit(OpQuadPattern quadPattern) {
+        Node graph = quadPattern.getGraphNode();
+        boolean defaultGraph = Quad.isDefaultGraph(graph);
+        boolean quadTable = !defaultGraph || unionDefaultGraph;
+        Node effectiveGraph = defaultGraph && unionDefaultGraph ? Quad.unionGraph : graph;
+        TupleIndex[] indexes = quadTable ? dsgTDB.getQuadTable().getNodeTupleTable().getTupleTable().getIndexes()
+                                         : dsgTDB.getTripleTable().getNodeTupleTable().getTupleTable().getIndexes();
+        blocks.add(explainBlock(effectiveGraph, quadTable, quadPattern.getBasicPattern(), indexes, reorder));
+      }
+
+      @Override
+      public void visit(OpBGP opBGP) {
+        TupleIndex[] indexes = dsgTDB.getTripleTable().getNodeTupleTable().getTupleTable().getIndexes();
+        blocks.add(explainBlock(Quad.defaultGraphIRI, false, opBGP.getPattern(), indexes, reorder));
+      }
+    });
+    return new QueryExplain(query.serialize(), op.toString(), blocks);
+  }
+
+  public QueryProfile profile(Query query) {
+    return profile(query, QueryProfile.Trigger.MANUAL, -1);
+  }
+
+  /**
+   * Called with the duration of every regular read. A query slower than the current Nth slowest
+   * is executed again in the background with profiling on, so the actuator endpoint reflects real traffic.
+   * A query is retained or pending at most once, and pending profiles beyond a small backlog
+   * are dropped rather than slowing down the service.
+   */
+  public void observe(Query query, long elapsedMillis) {
+    if (!profileTraffic || elapsedMillis < minMillis) {
+      return;
+    }
+    String key = query.serialize();
+    if (!reserve(key, elapsedMillis)) {
+      return;
+    }
+    try {
+      trafficProfiler.execute(() -> {
+        try {
+          profile(query, QueryProfile.Trigger.TRAFFIC, elapsedMillis);
+        }
+        catch (Exception exc) {
+          log.warn("could not profile slow query", exc);
+        }
+        finally {
+          release(key);
+        }
+      });
+    }
+    catch (RejectedExecutionException exc) {
+      release(key);
+    }
+  }
+
+  private QueryProfile profile(Query query, QueryProfile.Trigger trigger, long observedMillis) {
+    ProfilingSession session = new ProfilingSession();
+    long start = System.currentTimeMillis();
+    long rows = Txn.calculateRead(ds, () -> {
+      try (QueryExecution queryExecution = QueryExecutionDatasetBuilder.create()
+                                                                       .query(query)
+                                                                       .dataset(ds)
+                                                                       .timeout(timeout, TimeUnit.SECONDS)
+                                                                       .build()
+      ) {
+        QC.setFactory(queryExecution.getContext(), execCxt -> new ProfilingOpExecutor(execCxt, session));
+        return switch (query.queryType()) {
+          case ASK -> queryExecution.execAsk() ? 1L : 0L;
+          case SELECT -> (long) ResultSetFormatter.consume(queryExecution.execSelect());
+          case DESCRIBE -> queryExecution.execDescribe().size();
+          case CONSTRUCT -> queryExecution.execConstruct().size();
+          default -> throw new UnsupportedOperationException(query.queryType() + " Not supported");
+        };
+      }
+    });
+    long elapsed = System.currentTimeMillis() - start;
+    var profile = new QueryProfile(query.serialize(), trigger, new Date(), observedMillis < 0 ? elapsed : observedMillis,
+                                   rows, elapsed, session.profiles());
+    retain(profile);
+    return profile;
+  }
+
+  public synchronized List<QueryProfile> getSlowest() {
+    return slowest.values()
+                  .stream()
+                  .sorted(Comparator.comparingLong(QueryProfile::observedMillis).reversed())
+                  .toList();
+  }
+
+  public synchronized void clear() {
+    slowest.clear();
+  }
+
+  @Override
+  public void destroy() {
+    trafficProfiler.shutdownNow();
+  }
+
+  private synchronized boolean reserve(String key, long elapsedMillis) {
+    if (pending.contains(key)) {
+      return false;
+    }
+    QueryProfile existing = slowest.get(key);
+    if (existing != null) {
+      if (existing.observedMillis() >= elapsedMillis) {
+        return false;
+      }
+    }
+    else if (slowest.size() >= retain && fastest().map(p -> p.observedMillis() >= elapsedMillis).orElse(false)) {
+      return false;
+    }
+    return pending.add(key);
+  }
+
+  private synchronized void release(String key) {
+    pending.remove(key);
+  }
+
+  private synchronized void retain(QueryProfile profile) {
+    slowest.merge(profile.query(), profile,
+                  (current, candidate) -> candidate.observedMillis() >= current.observedMillis() ? candidate : current);
+    while (slowest.size() > retain) {
+      fastest().ifPresent(p -> slowest.remove(p.query()));
+    }
+  }
+
+  private Optional<QueryProfile> fastest() {
+    return slowest.values().stream().min(Comparator.comparingLong(QueryProfile::observedMillis));
+  }
+
+  /**
+   * Mirrors TDB2 index selection: the index whose key starts with the longest run of bound slots,
+   * a slot being bound when it is a constant or a variable set by a previous pattern.
+   */
+  private QueryExplain.PatternBlock explainBlock(Node graph, boolean quadTable, BasicPattern pattern,
+                                                 TupleIndex[] indexes, ReorderTransformation reorder) {
+    BasicPattern ordered = reorder == null ? pattern : reorder.reorder(pattern);
+    Set<Node> boundVars = new HashSet<>();
+    List<QueryExplain.PatternAccess> accesses = new ArrayList<>();
+    for (Triple triple : ordered) {
+      Node[] slots = quadTable ? new Node[]{graph, triple.getSubject(), triple.getPredicate(), triple.getObject()}
+                               : new Node[]{triple.getSubject(), triple.getPredicate(), triple.getObject()};
+      TupleIndex best = indexes[0];
+      int bestPrefix = -1;
+      for (TupleIndex index : indexes) {
+        int prefix = boundPrefix(index.getName(), quadTable ? "GSPO" : "SPO", slots, boundVars);
+        if (prefix > bestPrefix) {
+          best = index;
+          bestPrefix = prefix;
+        }
+      }
+      accesses.add(new QueryExplain.PatternAccess(triple.toString(), best.getName()));
+      Stream.of(slots).filter(Node::isVariable).forEach(boundVars::add);
+    }
+    return new QueryExplain.PatternBlock(graph.toString(), accesses);
+  }
+
+  private int boundPrefix(String indexName, String primary, Node[] slots, Set<Node> boundVars) {
+    int prefix = 0;
+    for (char key : indexName.toCharArray()) {
+      Node slot = slots[primary.indexOf(key)];
+      if (Quad.isUnionGraph(slot) || (slot.isVariable() && !boundVars.contains(slot))) {
+        break;
+      }
+      prefix++;
+    }
+    return prefix;
+  }
+}
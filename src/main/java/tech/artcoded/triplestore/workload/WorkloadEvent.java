@@ -0,0 +1,20 @@
+package tech.artcoded.triplestore.workload;
+
+public record WorkloadEvent(long offsetMillis, Type type, String accept, String query, long elapsedMillis, boolean success) {
+
+  public enum Type {READ, UPDATE}
+
+  /**
+   * Query shape with IRIs, literals and numbers blanked out, so executions of the same
+   * template with different values are reported together.
+   */
+  public static String fingerprint(String query) {
+    return query.replaceAll("(?s)\"\"\".*?\"\"\"|'''.*?'''", "?")
+                .replaceAll("\"(\\\\.|[^\"\\\\])*\"|'(\\\\.|[^'\\\\])*'", "?")
+                .replaceAll("<[^<>\\s]*>", "?")
+                .replaceAll("(?im)^\\s*(PREFIX|BASE)\\b.*$", "")
+                .replaceAll("(?<![\\w?$:])[-+]?\\d+(\\.\\d+)?", "?")
+                .replaceAll("\\s+", " ")
+                .trim();
+  }
+}
@@ -0,0 +1,115 @@
+package tech.artcoded.triplestore.workload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.LocalDateTime.now;
+import static java.time.format.DateTimeFormatter.ofPattern;
+
+/**
+ * Appends every captured operation as one json line to a gzipped file, replayable with {@link WorkloadReplay}.
+ * Request threads only enqueue events, a single writer thread serializes them and flushes once per second.
+ * Offsets are relative to the recorder start and events are in completion order, {@link WorkloadReplay} sorts them.
+ */
+@Service
+@Slf4j
+public class WorkloadRecorder implements DisposableBean {
+  private static final int QUEUE_CAPACITY = 10_000;
+  private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+  private final ObjectMapper objectMapper;
+  private final BlockingQueue<WorkloadEvent> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+  private final long origin = System.currentTimeMillis();
+  private final AtomicLong dropped = new AtomicLong();
+  private Writer writer;
+  private Thread writerThread;
+  private volatile boolean running;
+
+  public WorkloadRecorder(ObjectMapper objectMapper,
+                          @Value("${triplestore.capture.enabled}") boolean enabled,
+                          @Value("${triplestore.capture.dir}") String captureDir) throws IOException {
+    this.objectMapper = objectMapper;
+    if (enabled) {
+      File dir = new File(captureDir);
+      if (!dir.exists()) {
+        log.info("creating directory {}: {}", captureDir, dir.mkdirs());
+      }
+      File file = new File(dir, "capture-%s.jsonl.gz".formatted(now().format(ofPattern("yyyyMMddHHmmss"))));
+      log.info("capturing workload to {}", file.getAbsolutePath());
+      this.writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file), 64 * 1024, true),
+                                                              UTF_8));
+      this.running = true;
+      this.writerThread = new Thread(this::drain, "workload-recorder");
+      this.writerThread.setDaemon(true);
+      this.writerThread.start();
+    }
+  }
+
+  public boolean isEnabled() {
+    return writer != null;
+  }
+
+  public void record(WorkloadEvent.Type type, String query, String accept, long startMillis, boolean success) {
+    if (!isEnabled() || !running) {
+      return;
+    }
+    long elapsedMillis = System.currentTimeMillis() - startMillis;
+    var event = new WorkloadEvent(Math.max(startMillis - origin, 0), type, accept, query, elapsedMillis, success);
+    if (!queue.offer(event) && dropped.incrementAndGet() % 1000 == 1) {
+      log.warn("capture queue full, {} events dropped so far", dropped.get());
+    }
+  }
+
+  private void drain() {
+    long lastFlush = System.currentTimeMillis();
+    try {
+      while (running || !queue.isEmpty()) {
+        WorkloadEvent event = queue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        if (event != null) {
+          write(event);
+        }
+        if (System.currentTimeMillis() - lastFlush >= FLUSH_INTERVAL_MILLIS) {
+          writer.flush();
+          lastFlush = System.currentTimeMillis();
+        }
+      }
+    }
+    catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+    }
+    catch (IOException exc) {
+      log.error("workload capture stopped", exc);
+      running = false;
+    }
+  }
+
+  private void write(WorkloadEvent event) throws IOException {
+    writer.write(objectMapper.writeValueAsString(event));
+    writer.write('\n');
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    if (writer != null) {
+      running = false;
+      writerThread.join(TimeUnit.SECONDS.toMillis(10));
+      writer.close();
+    }
+  }
+}
@@ -0,0 +1,229 @@
+package tech.artcoded.triplestore.workload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Standalone load test replaying a capture of {@link WorkloadRecorder} against a running instance.
+ * Reads go to /sparql directly, updates go through /sparql to the broker queue, so their latency is the enqueue time.
+ * Latencies are measured from the scheduled send time, including any wait for a free worker.
+ * <p>
+ * Usage: {@code java -cp app.jar -Dloader.main=tech.artcoded.triplestore.workload.WorkloadReplay
+ * org.springframework.boot.loader.PropertiesLauncher --file=capture.jsonl.gz [--url=http://localhost:8080]
+ * [--speed=1] [--concurrency=8] [--token=jwt]}
+ * <p>
+ * {@code --speed} multiplies the recorded rate, 0 sends as fast as the concurrency allows.
+ */
+public class WorkloadReplay {
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+  private final Map<String, Stats> statsByFingerprint = new ConcurrentHashMap<>();
+  private final String url;
+  private final double speed;
+  private final int concurrency;
+  private final String token;
+
+  WorkloadReplay(String url, double speed, int concurrency, String token) {
+    this.url = url;
+    this.speed = speed;
+    this.concurrency = concurrency;
+    this.token = token;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      String[] option = arg.replaceFirst("^--", "").split("=", 2);
+      options.put(option[0], option.length > 1 ? option[1] : "true");
+    }
+    if (!options.containsKey("file")) {
+      System.err.println("usage: --file=capture.jsonl.gz [--url=http://localhost:8080] [--speed=1] [--concurrency=8] [--token=jwt]");
+      System.exit(1);
+    }
+    var replay = new WorkloadReplay(options.getOrDefault("url", "http://localhost:8080"),
+                                    Double.parseDouble(options.getOrDefault("speed", "1")),
+                                    Integer.parseInt(options.getOrDefault("concurrency", "8")),
+                                    options.get("token"));
+    replay.run(options.get("file"));
+  }
+
+  void run(String file) throws Exception {
+    List<WorkloadEvent> events = readEvents(file);
+    ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+    Semaphore permits = new Semaphore(concurrency);
+    AtomicLong sent = new AtomicLong();
+    long firstOffset = events.isEmpty() ? 0 : events.get(0).offsetMillis();
+    long lastOffset = events.isEmpty() ? 0 : events.get(events.size() - 1).offsetMillis();
+    long start = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
+    try {
+      for (WorkloadEvent event : events) {
+        // latency is measured from the scheduled time, so a saturated instance delaying sends is not hidden
+        long scheduled = System.nanoTime();
+        if (speed > 0) {
+          scheduled = startNanos + (long) ((event.offsetMillis() - firstOffset) / speed * 1_000_000);
+          long wait = TimeUnit.NANOSECONDS.toMillis(scheduled - System.nanoTime());
+          if (wait > 0) {
+            Thread.sleep(wait);
+          }
+        }
+        permits.acquire();
+        sent.incrementAndGet();
+        long scheduledNanos = speed > 0 ? scheduled : System.nanoTime();
+        executor.submit(() -> {
+          try {
+            send(event, scheduledNanos);
+          }
+          finally {
+            permits.release();
+          }
+        });
+      }
+    }
+    finally {
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.HOURS);
+      double targetSeconds = speed > 0 ? (lastOffset - firstOffset) / speed / 1000d : 0;
+      report(sent.get(), System.currentTimeMillis() - start, targetSeconds);
+    }
+  }
+
+  /**
+   * Events are written when an operation completes, so the file is not in start order:
+   * they are sorted by offset before being scheduled.
+   */
+  private List<WorkloadEvent> readEvents(String file) throws IOException {
+    List<WorkloadEvent> events = new ArrayList<>();
+    long skipped = 0;
+    try (var reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), UTF_8))) {
+      String line;
+      while ((line = readLine(reader)) != null) {
+        WorkloadEvent event;
+        try {
+          event = objectMapper.readValue(line, WorkloadEvent.class);
+        }
+        catch (Exception exc) {
+          skipped++;
+          continue;
+        }
+        if (event.type() == WorkloadEvent.Type.UPDATE && !event.success()) {
+          continue; // failed attempts are redelivered by the broker, only the outcome is replayed
+        }
+        events.add(event);
+      }
+    }
+    if (skipped > 0) {
+      System.out.printf("%d malformed lines skipped%n", skipped);
+    }
+    events.sort(Comparator.comparingLong(WorkloadEvent::offsetMillis));
+    return events;
+  }
+
+  /**
+   * A capture of an instance that was killed has no gzip trailer, what could be read is replayed.
+   */
+  private String readLine(BufferedReader reader) throws IOException {
+    try {
+      return reader.readLine();
+    }
+    catch (EOFException exc) {
+      System.out.println("capture truncated, replaying what could be read");
+      return null;
+    }
+  }
+
+  private void send(WorkloadEvent event, long scheduledNanos) {
+    String param = event.type() == WorkloadEvent.Type.READ ? "query" : "update";
+    var request = HttpRequest.newBuilder(URI.create(url + "/sparql"))
+                             .header("Content-Type", "application/x-www-form-urlencoded")
+                             .POST(HttpRequest.BodyPublishers.ofString(param + "=" + URLEncoder.encode(event.query(), UTF_8)));
+    if (event.accept() != null) {
+      request.header("Accept", event.accept());
+    }
+    if (token != null) {
+      request.header("Authorization", "Bearer " + token);
+    }
+    Stats stats = statsByFingerprint.computeIfAbsent(event.type() + " " + WorkloadEvent.fingerprint(event.query()),
+                                                     k -> new Stats());
+    boolean success;
+    try {
+      HttpResponse<Void> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding());
+      success = response.statusCode() < 400;
+    }
+    catch (Exception exc) {
+      success = false;
+    }
+    stats.add(System.nanoTime() - scheduledNanos, success);
+  }
+
+  private void report(long sent, long elapsedMillis, double targetSeconds) {
+    double achieved = sent * 1000d / Math.max(elapsedMillis, 1);
+    System.out.printf("%d operations in %d ms, %.1f ops/s", sent, elapsedMillis, achieved);
+    if (targetSeconds > 0) {
+      System.out.printf(" (target %.1f ops/s)", sent / targetSeconds);
+    }
+    System.out.printf("%n%n");
+    System.out.printf("%8s %8s %8s %10s %10s %10s %10s  %s%n", "count", "errors", "error %", "p50 ms", "p90 ms", "p99 ms", "max ms", "fingerprint");
+    statsByFingerprint.entrySet()
+                      .stream()
+                      .sorted(Comparator.comparingInt((Map.Entry<String, Stats> e) -> e.getValue().count()).reversed())
+                      .forEach(e -> e.getValue().print(e.getKey()));
+  }
+
+  static class Stats {
+    private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong errors = new AtomicLong();
+
+    void add(long nanos, boolean success) {
+      latencies.add(nanos);
+      if (!success) {
+        errors.incrementAndGet();
+      }
+    }
+
+    int count() {
+      return latencies.size();
+    }
+
+    void print(String fingerprint) {
+      List<Long> sorted;
+      synchronized (latencies) {
+        sorted = latencies.stream().sorted().toList();
+      }
+      String shortFingerprint = fingerprint.length() > 120 ? fingerprint.substring(0, 117) + "..." : fingerprint;
+      System.out.printf("%8d %8d %8.2f %10.1f %10.1f %10.1f %10.1f  %s%n", sorted.size(), errors.get(),
+                        errors.get() * 100d / sorted.size(), percentile(sorted, 50),
+                        percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 100), shortFingerprint);
+    }
+
+    private double percentile(List<Long> sorted, int percentile) {
+      int index = (int) Math.ceil(percentile / 100d * sorted.size()) - 1;
+      return sorted.get(Math.max(index, 0)) / 1_000_000d;
+    }
+  }
+}